@@ -22,6 +22,10 @@ import net.radai.beanz.Beanz;
 import net.radai.beanz.api.*;
 import net.radai.beanz.util.ReflectionUtil;
 import net.radai.garbanzo.annotations.IniComment;
+import net.radai.garbanzo.codec.ValueCodec;
+import net.radai.garbanzo.codec.ValueCodecs;
+import net.radai.garbanzo.io.StreamCodec;
+import net.radai.garbanzo.io.StreamCodecs;
 import net.radai.garbanzo.util.Inflection;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -31,9 +35,25 @@ import org.ini4j.Profile;
 import org.ini4j.spi.IniBuilder;
 import org.ini4j.spi.IniParser;
 
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
 /**
@@ -41,9 +61,101 @@ import java.util.*;
  */
 public class Garbanzo {
     private static final Logger log = LogManager.getLogger(Garbanzo.class);
+    private static final String CANONICAL_LINE_SEPARATOR = "\n";
+    private static final String CANONICAL_DIGEST_ALGORITHM = "SHA-256";
 
     public static <T> String marshal(T beanInstance) {
+        try (StringWriter writer = new StringWriter()) {
+            marshal(beanInstance, writer);
+            return writer.toString();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static <T> void marshal(T beanInstance, Writer to) throws IOException {
+        buildIni(beanInstance, false).store(to);
+    }
+
+    /**
+     * writes the given bean to the given stream as UTF-8, encoded with the given codec (if not null).
+     * the stream is not closed.
+     */
+    public static <T> void marshal(T beanInstance, OutputStream to, StreamCodec codec) throws IOException {
+        OutputStream target = new FilterOutputStream(to) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len); //FilterOutputStream writes byte by byte otherwise
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush(); //the stream belongs to the caller
+            }
+        };
+        if (codec != null) {
+            target = codec.encode(target);
+        }
+        try (Writer writer = new OutputStreamWriter(target, StandardCharsets.UTF_8)) {
+            marshal(beanInstance, writer);
+        }
+    }
+
+    /**
+     * writes the given bean to the given file, encoded according to the file's extension (so "conf.ini.gz"
+     * is gzipped, see {@link StreamCodecs#forFileName(String)})
+     */
+    public static <T> void marshal(T beanInstance, Path to) throws IOException {
+        try (OutputStream out = Files.newOutputStream(to)) {
+            marshal(beanInstance, out, StreamCodecs.forFileName(to.getFileName().toString()));
+        }
+    }
+
+    /**
+     * marshals the given bean in canonical form - properties, set elements and map entries are written in sorted
+     * order and lines are always separated by "\n", so that equal beans always produce identical output.
+     */
+    public static <T> String marshalCanonical(T beanInstance) {
+        try (StringWriter writer = new StringWriter()) {
+            buildIni(beanInstance, true).store(writer);
+            return writer.toString();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * writes the canonical form of the given bean (see {@link #marshalCanonical(Object)}) to the given stream
+     * as UTF-8, and returns the SHA-256 digest of the bytes written.
+     */
+    public static <T> byte[] marshalCanonical(T beanInstance, OutputStream to) throws IOException {
+        return marshalCanonical(beanInstance, to, CANONICAL_DIGEST_ALGORITHM);
+    }
+
+    /**
+     * writes the canonical form of the given bean (see {@link #marshalCanonical(Object)}) to the given stream
+     * as UTF-8, and returns the digest of the bytes written, computed as they are written.
+     */
+    public static <T> byte[] marshalCanonical(T beanInstance, OutputStream to, String digestAlgorithm) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(digestAlgorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("unsupported digest algorithm " + digestAlgorithm, e);
+        }
+        Ini ini = buildIni(beanInstance, true);
+        DigestOutputStream digestStream = new DigestOutputStream(to, digest);
+        Writer writer = new OutputStreamWriter(digestStream, StandardCharsets.UTF_8);
+        ini.store(writer);
+        writer.flush(); //not closing - the stream belongs to the caller
+        return digest.digest();
+    }
+
+    private static <T> Ini buildIni(T beanInstance, boolean canonical) {
         Config iniConfig = buildIniConfig();
+        if (canonical) {
+            iniConfig.setLineSeparator(CANONICAL_LINE_SEPARATOR);
+        }
         Ini ini = new Ini();
         ini.setConfig(iniConfig);
         Profile.Section defaultSection = ini.add(iniConfig.getGlobalSectionName());
@@ -55,7 +167,7 @@ public class Garbanzo {
             ini.putComment(iniConfig.getGlobalSectionName(), docAnnotation.value());
         }
 
-        for (Map.Entry<String, Property> propEntry : bean.getProperties().entrySet()) {
+        for (Map.Entry<String, Property> propEntry : properties(bean, canonical)) {
             String propName = propEntry.getKey();
             Property prop = propEntry.getValue();
             net.radai.beanz.api.Codec codec = prop.getCodec();
@@ -67,7 +179,7 @@ public class Garbanzo {
                 case SIMPLE:
                     if (codec != null) {
                         //prop --> string
-                        String stringValue = prop.getAsString();
+                        String stringValue = getAsString(prop);
                         if (stringValue != null) {
                             defaultSection.put(propName, stringValue);
                             if (comment != null) {
@@ -89,7 +201,7 @@ public class Garbanzo {
                             if (comment != null) {
                                 ini.putComment(propName, comment);
                             }
-                            serializeToSection(innerBean, targetSection);
+                            serializeToSection(innerBean, targetSection, canonical);
                         }
                     }
                     break;
@@ -98,7 +210,7 @@ public class Garbanzo {
                     singular = Inflection.singularize(propName);
                     if (codec != null) {
                         //prop --> multi value (potentially under singular name)
-                        List<String> stringValues = arrayProp.getAsStrings();
+                        List<String> stringValues = getAsStrings(arrayProp);
                         if (stringValues != null) {
                             defaultSection.putAll(singular, stringValues);
                             if (comment != null) {
@@ -107,7 +219,7 @@ public class Garbanzo {
                         }
                     } else {
                         //prop --> multi section (potentially under singular name)
-                        serializeToSections(ini, arrayProp.getAsList(), singular, comment);
+                        serializeToSections(ini, arrayProp.getAsList(), singular, comment, canonical);
                     }
                     break;
                 case COLLECTION:
@@ -115,26 +227,26 @@ public class Garbanzo {
                     singular = Inflection.singularize(propName);
                     if (codec != null) {
                         //prop --> multi value (potentially under singular name)
-                        Collection<String> asStrings = collectionProp.getAsStrings();
+                        Collection<String> asStrings = getAsStrings(collectionProp);
                         if (asStrings != null) {
-                            defaultSection.putAll(singular, new ArrayList<>(asStrings)); //orig might be a set
+                            defaultSection.putAll(singular, toList(collectionProp, asStrings, canonical)); //orig might be a set
                             if (comment != null) {
                                 defaultSection.putComment(propName, comment);
                             }
                         }
                     } else {
                         //prop --> multi section (potentially under singular name)
-                        serializeToSections(ini, collectionProp.getCollection(), singular, comment);
+                        serializeToSections(ini, canonicalOrder(collectionProp.getCollection(), canonical), singular, comment, canonical);
                     }
                     break;
                 case MAP:
                     MapProperty mapProp = (MapProperty) prop;
                     if (codec != null) {
                         //prop --> section
-                        Map<String, String> asStrings = mapProp.getAsStrings();
+                        Map<String, String> asStrings = getAsStrings(mapProp);
                         if (asStrings != null) {
                             Profile.Section targetSection = ini.add(propName);
-                            targetSection.putAll(asStrings);
+                            targetSection.putAll(canonical ? new TreeMap<>(asStrings) : asStrings);
                             if (comment != null) {
                                 ini.putComment(propName, comment);
                             }
@@ -148,19 +260,89 @@ public class Garbanzo {
             }
         }
 
-        try (StringWriter writer = new StringWriter()) {
-            ini.store(writer);
-            return writer.toString();
+        return ini;
+    }
+
+    public static <T> T unmarshall(Class<T> beanClass, String from) {
+        if (from == null) {
+            return null;
+        }
+        try {
+            return unmarshall(beanClass, new StringReader(from));
         } catch (IOException e) {
             throw new IllegalStateException(e);
         }
     }
 
-    public static <T> T unmarshall(Class<T> beanClass, String from) {
+    public static <T> T unmarshall(Class<T> beanClass, Reader from) throws IOException {
+        return unmarshall(beanClass, from, null);
+    }
+
+    /**
+     * reads a bean from the given UTF-8 stream, decoding it with the given codec (if not null) as it is parsed.
+     * the stream is not closed.
+     */
+    public static <T> T unmarshall(Class<T> beanClass, InputStream from, StreamCodec codec) throws IOException {
+        if (from == null) {
+            return null;
+        }
+        InputStream source = new FilterInputStream(from) {
+            @Override
+            public void close() throws IOException {
+                //the stream belongs to the caller
+            }
+        };
+        if (codec != null) {
+            source = codec.decode(source);
+        }
+        try (Reader reader = new InputStreamReader(source, StandardCharsets.UTF_8)) { //releases the codec
+            return unmarshall(beanClass, reader);
+        }
+    }
+
+    /**
+     * reads a bean from the given file, decoding it according to the file's extension
+     * (see {@link StreamCodecs#forFileName(String)})
+     */
+    public static <T> T unmarshall(Class<T> beanClass, Path from) throws IOException {
+        try (InputStream in = Files.newInputStream(from)) {
+            return unmarshall(beanClass, in, StreamCodecs.forFileName(from.getFileName().toString()));
+        }
+    }
+
+    /**
+     * unmarshalls only the given properties. paths are either top level property names ("prop"), which select
+     * the property in its entirety, or section-qualified ("prop.innerProp"), which select individual properties
+     * of a section class. sections that are not selected are skipped line by line, without being parsed,
+     * and everything else not selected is dropped as it is parsed. nothing unselected is ever bound.
+     * a null set of paths means everything.
+     * @throws IllegalArgumentException if any of the paths does not resolve to a property of the given class
+     */
+    public static <T> T unmarshall(Class<T> beanClass, Reader from, Set<String> propertyPaths) throws IOException {
         if (from == null) {
             return null;
         }
-        Ini ini = readIni(from);
+        if (propertyPaths != null) {
+            validatePropertyPaths(beanClass, propertyPaths);
+        }
+        if (propertyPaths == null) {
+            return bind(beanClass, readIni(from), null);
+        }
+        Config iniConfig = buildIniConfig();
+        Ini ini = new Ini();
+        ini.setConfig(iniConfig);
+        ProjectingIniHandler projection = new ProjectingIniHandler(IniBuilder.newInstance(ini),
+                iniConfig.getGlobalSectionName(), propertyPaths);
+        //unselected sections are dropped before the parser sees them, the handler filters the rest
+        IniParser.newInstance(iniConfig).parse(new SectionSkippingReader(from, projection::isSelected), projection);
+        return bind(beanClass, ini, projection.getEmptiedSections());
+    }
+
+    /**
+     * @param emptiedSections sections (by name and index) that are empty only because their contents were
+     *                        projected out, and should be bound as empty beans rather than nulls. may be null
+     */
+    static <T> T bind(Class<T> beanClass, Ini ini, Map<String, BitSet> emptiedSections) {
         String globalSectionName = ini.getConfig().getGlobalSectionName();
         Bean<T> bean = Beanz.create(beanClass);
         Set<String> sectionNames = ini.keySet();
@@ -185,12 +367,73 @@ public class Garbanzo {
                 if (property == null) {
                     throw new IllegalArgumentException();
                 }
-                populateFromSections(property, sectionInstances);
+                populateFromSections(property, sectionInstances,
+                        emptiedSections != null ? emptiedSections.get(sectionName) : null);
             }
         }
         return bean.getBean();
     }
 
+    private static void validatePropertyPaths(Class<?> beanClass, Set<String> propertyPaths) {
+        Bean<?> bean = Beanz.create(beanClass);
+        for (String path : propertyPaths) {
+            String[] parts = path.split("\\.", -1);
+            if (parts.length > 2) {
+                throw new IllegalArgumentException("invalid path " + path
+                        + " - the INI format does not support nested sections");
+            }
+            Property property = findProperty(bean, parts[0]);
+            if (property == null) {
+                throw new IllegalArgumentException("cannot find property " + parts[0] + " in " + beanClass.getName()
+                        + " for path " + path);
+            }
+            if (parts.length == 1) {
+                continue;
+            }
+            if (property.getType() == PropertyType.MAP && property.getCodec() != null) {
+                continue; //map sections can have any key
+            }
+            Class<?> sectionClass = sectionClass(property);
+            if (sectionClass == null) {
+                throw new IllegalArgumentException("invalid path " + path + " - " + property + " is not a section");
+            }
+            if (findProperty(Beanz.create(sectionClass), parts[1]) == null) {
+                throw new IllegalArgumentException("cannot find property " + parts[1] + " in " + sectionClass.getName()
+                        + " for path " + path);
+            }
+        }
+    }
+
+    /**
+     * @return the class serialized into the section(s) of the given property, or null if it's not a bean property
+     */
+    static Class<?> sectionClass(Property property) {
+        if (property.getCodec() != null) {
+            return null; //a value (or a map of values), not a bean
+        }
+        switch (property.getType()) {
+            case SIMPLE:
+                return ReflectionUtil.erase(property.getValueType());
+            case ARRAY:
+                return ReflectionUtil.erase(((ArrayProperty) property).getElementType());
+            case COLLECTION:
+                return ReflectionUtil.erase(((CollectionProperty) property).getElementType());
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * finds a property by name, or by its plural (if name is "dog" maybe there's a prop "dogs")
+     */
+    static Property findProperty(Bean<?> bean, String name) {
+        Property property = bean.getProperty(name);
+        if (property == null) {
+            property = bean.getProperty(Inflection.pluralize(name));
+        }
+        return property;
+    }
+
     private static void populate(Bean what, Profile.Section from) {
         Set<String> keys = from.keySet();
         for (String key : keys) {
@@ -221,13 +464,13 @@ public class Garbanzo {
                 if (values.size() != 1) {
                     throw new IllegalArgumentException();
                 }
-                property.setFromString(values.get(0));
+                setFromString(property, values.get(0));
                 break;
             case ARRAY:
-                ((ArrayProperty)property).setFromStrings(values);
+                setFromStrings((ArrayProperty) property, values);
                 break;
             case COLLECTION:
-                ((CollectionProperty)property).setFromStrings(values);
+                setFromStrings((CollectionProperty) property, values);
                 break;
             case MAP:
                 throw new IllegalArgumentException();
@@ -236,7 +479,7 @@ public class Garbanzo {
         }
     }
 
-    private static void populateFromSections(Property property, List<Profile.Section> from) {
+    private static void populateFromSections(Property property, List<Profile.Section> from, BitSet emptied) {
         PropertyType propertyType = property.getType();
         Class<?> beanClass;
         switch (propertyType) {
@@ -252,12 +495,12 @@ public class Garbanzo {
             case ARRAY:
                 ArrayProperty arrayProperty = (ArrayProperty) property;
                 beanClass = ReflectionUtil.erase(arrayProperty.getElementType());
-                arrayProperty.setArray(deserializeBeanCollection(beanClass, from));
+                arrayProperty.setArray(deserializeBeanCollection(beanClass, from, emptied));
                 break;
             case COLLECTION:
                 CollectionProperty collectionProperty = (CollectionProperty) property;
                 beanClass = ReflectionUtil.erase(collectionProperty.getElementType());
-                collectionProperty.setCollection(deserializeBeanCollection(beanClass, from));
+                collectionProperty.setCollection(deserializeBeanCollection(beanClass, from, emptied));
                 break;
             case MAP:
                 if (from.size() != 1) {
@@ -265,19 +508,21 @@ public class Garbanzo {
                 }
                 MapProperty mapProperty = (MapProperty) property;
                 Map<String, String> strMap = toMap(from.get(0)); //empty section turns to empty map. null map would be the section missing entirely
-                mapProperty.setFromStrings(strMap);
+                setFromStrings(mapProperty, strMap);
                 break;
             default:
                 throw new UnsupportedOperationException("unhandled " + propertyType);
         }
     }
 
-    private static Collection<Object> deserializeBeanCollection(Class<?> beanClass, List<Profile.Section> from) {
+    private static Collection<Object> deserializeBeanCollection(Class<?> beanClass, List<Profile.Section> from,
+                                                                BitSet emptied) {
         Collection<Object> values;
         Bean elementPod;
         values = new ArrayList<>(from.size());
-        for (Profile.Section section : from) {
-            if (section.isEmpty()) {
+        for (int i = 0; i < from.size(); i++) {
+            Profile.Section section = from.get(i);
+            if (section.isEmpty() && (emptied == null || !emptied.get(i))) {
                 values.add(null); //empty sections in lists/arrays turn to nulls
             } else {
                 elementPod = Beanz.create(beanClass);
@@ -288,13 +533,13 @@ public class Garbanzo {
         return values;
     }
 
-    private static void serializeToSections(Ini ini, Iterable<?> beans, String propName, String comment) {
+    private static void serializeToSections(Ini ini, Iterable<?> beans, String propName, String comment, boolean canonical) {
         if (beans != null) {
             for (Object rawValue : beans) {
                 Profile.Section targetSection = ini.add(propName);
                 if (rawValue != null) { //otherwise its an empty section
                     Bean innerBean = Beanz.wrap(rawValue);
-                    serializeToSection(innerBean, targetSection);
+                    serializeToSection(innerBean, targetSection, canonical);
                     if (targetSection.isEmpty()) { //ambiguous
                         log.warn("non-null object {} was serialized into an empty section, which would be deserialized into null", rawValue);
                     }
@@ -306,8 +551,8 @@ public class Garbanzo {
         }
     }
 
-    private static void serializeToSection(Bean<?> bean, Profile.Section section) {
-        for (Map.Entry<String, Property> propEntry : bean.getProperties().entrySet()) {
+    private static void serializeToSection(Bean<?> bean, Profile.Section section, boolean canonical) {
+        for (Map.Entry<String, Property> propEntry : properties(bean, canonical)) {
             String propName = propEntry.getKey();
             Property prop = propEntry.getValue();
             net.radai.beanz.api.Codec codec = prop.getCodec();
@@ -322,7 +567,7 @@ public class Garbanzo {
             switch (prop.getType()) {
                 case SIMPLE:
                     //prop --> string
-                    String stringValue = prop.getAsString();
+                    String stringValue = getAsString(prop);
                     if (stringValue != null) {
                         section.put(propName, stringValue);
                         written = true;
@@ -332,7 +577,7 @@ public class Garbanzo {
                     //prop --> multi value (potentially under singular name)
                     ArrayProperty arrayProp = (ArrayProperty) prop;
                     singular = Inflection.singularize(propName);
-                    List<String> stringValues = arrayProp.getAsStrings();
+                    List<String> stringValues = getAsStrings(arrayProp);
                     if (stringValues != null) {
                         section.putAll(singular, stringValues);
                         written = true;
@@ -342,9 +587,9 @@ public class Garbanzo {
                     //prop --> multi value (potentially under singular name)
                     CollectionProperty collectionProp = (CollectionProperty) prop;
                     singular = Inflection.singularize(propName);
-                    Collection<String> asStrings = collectionProp.getAsStrings();
+                    Collection<String> asStrings = getAsStrings(collectionProp);
                     if (asStrings != null) {
-                        section.putAll(singular, new ArrayList<>(asStrings)); //turn into a list (orig might be a set)
+                        section.putAll(singular, toList(collectionProp, asStrings, canonical)); //turn into a list (orig might be a set)
                         written = true;
                     }
                     break;
@@ -361,6 +606,194 @@ public class Garbanzo {
         }
     }
 
+    /*
+     * the following convert values using the built-in ValueCodecs where one exists for the value type,
+     * and fall back to the generic beanz codecs otherwise. some are package-private for benchmarking
+     */
+
+    @SuppressWarnings("unchecked")
+    static String getAsString(Property prop) {
+        ValueCodec codec = ValueCodecs.forType(prop.getValueType());
+        if (codec == null) {
+            return prop.getAsString();
+        }
+        Object value = prop.get();
+        return value != null ? codec.encode(value) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    static void setFromString(Property prop, String value) {
+        ValueCodec codec = ValueCodecs.forType(prop.getValueType());
+        if (codec == null || value == null) {
+            prop.setFromString(value);
+            return;
+        }
+        prop.set(codec.decode(value));
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<String> getAsStrings(ArrayProperty prop) {
+        ValueCodec codec = ValueCodecs.forType(prop.getElementType());
+        if (codec == null) {
+            return prop.getAsStrings();
+        }
+        List<?> values = prop.getAsList();
+        if (values == null) {
+            return null;
+        }
+        List<String> result = new ArrayList<>(values.size());
+        for (Object value : values) {
+            result.add(value != null ? codec.encode(value) : null);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    static void setFromStrings(ArrayProperty prop, List<String> values) {
+        ValueCodec codec = ValueCodecs.forType(prop.getElementType());
+        if (codec == null) {
+            prop.setFromStrings(values);
+            return;
+        }
+        List<Object> decoded = new ArrayList<>(values.size());
+        for (String value : values) {
+            decoded.add(value != null ? codec.decode(value) : null);
+        }
+        prop.setArray(decoded);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Collection<String> getAsStrings(CollectionProperty prop) {
+        ValueCodec codec = ValueCodecs.forType(prop.getElementType());
+        if (codec == null) {
+            return prop.getAsStrings();
+        }
+        Collection<?> values = prop.getCollection();
+        if (values == null) {
+            return null;
+        }
+        List<String> result = new ArrayList<>(values.size());
+        for (Object value : values) {
+            result.add(value != null ? codec.encode(value) : null);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void setFromStrings(CollectionProperty prop, List<String> values) {
+        ValueCodec codec = ValueCodecs.forType(prop.getElementType());
+        if (codec == null) {
+            prop.setFromStrings(values);
+            return;
+        }
+        List<Object> decoded = new ArrayList<>(values.size());
+        for (String value : values) {
+            decoded.add(value != null ? codec.decode(value) : null);
+        }
+        prop.setCollection(decoded);
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, String> getAsStrings(MapProperty prop) {
+        Type[] typeArguments = mapTypeArguments(prop);
+        ValueCodec keyCodec = typeArguments != null ? ValueCodecs.forType(typeArguments[0]) : null;
+        ValueCodec valueCodec = typeArguments != null ? ValueCodecs.forType(typeArguments[1]) : null;
+        if (keyCodec == null || valueCodec == null) {
+            return prop.getAsStrings();
+        }
+        Map<?, ?> map = (Map<?, ?>) prop.get();
+        if (map == null) {
+            return null;
+        }
+        Map<String, String> result = new LinkedHashMap<>(map.size() * 2); //keep the map's own order
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            Object value = entry.getValue();
+            result.put(keyCodec.encode(entry.getKey()), value != null ? valueCodec.encode(value) : null);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    static void setFromStrings(MapProperty prop, Map<String, String> strings) {
+        Type[] typeArguments = mapTypeArguments(prop);
+        ValueCodec keyCodec = typeArguments != null ? ValueCodecs.forType(typeArguments[0]) : null;
+        ValueCodec valueCodec = typeArguments != null ? ValueCodecs.forType(typeArguments[1]) : null;
+        if (keyCodec == null || valueCodec == null) {
+            prop.setFromStrings(strings);
+            return;
+        }
+        Map<Object, Object> map = new HashMap<>(strings.size() * 2);
+        for (Map.Entry<String, String> entry : strings.entrySet()) {
+            String value = entry.getValue();
+            map.put(keyCodec.decode(entry.getKey()), value != null ? valueCodec.decode(value) : null);
+        }
+        prop.set(map);
+    }
+
+    /**
+     * @return the key and value types of a property declared as a plain Map&lt;K, V&gt;, null for anything else
+     * (including map implementation classes, which we would not know how to instantiate)
+     */
+    private static Type[] mapTypeArguments(MapProperty prop) {
+        Type type = prop.getValueType();
+        if (!(type instanceof ParameterizedType)) {
+            return null;
+        }
+        ParameterizedType parameterized = (ParameterizedType) type;
+        if (parameterized.getRawType() != Map.class) {
+            return null;
+        }
+        return parameterized.getActualTypeArguments();
+    }
+
+    private static Collection<Map.Entry<String, Property>> properties(Bean<?> bean, boolean canonical) {
+        Map<String, Property> properties = bean.getProperties();
+        return canonical ? new TreeMap<>(properties).entrySet() : properties.entrySet();
+    }
+
+    private static List<String> toList(CollectionProperty prop, Collection<String> asStrings, boolean canonical) {
+        List<String> result = new ArrayList<>(asStrings);
+        if (canonical && !(prop.getCollection() instanceof List)) {
+            //lists are ordered by definition, anything else (sets) has no meaningful order, so we impose one
+            result.sort(Comparator.nullsFirst(Comparator.naturalOrder()));
+        }
+        return result;
+    }
+
+    /**
+     * imposes a stable order on non-list collections of beans by sorting them according to their serialized form
+     */
+    private static Iterable<?> canonicalOrder(Collection<?> beans, boolean canonical) {
+        if (!canonical || beans == null || beans instanceof List) {
+            return beans;
+        }
+        Ini scratch = new Ini();
+        scratch.setConfig(buildIniConfig());
+        List<Map.Entry<String, Object>> keyed = new ArrayList<>(beans.size());
+        for (Object rawValue : beans) {
+            String key = null; //null values become empty sections, and go first
+            if (rawValue != null) {
+                Profile.Section section = scratch.add("scratch");
+                serializeToSection(Beanz.wrap(rawValue), section, true);
+                StringBuilder sb = new StringBuilder();
+                for (String sectionKey : section.keySet()) {
+                    for (String value : section.getAll(sectionKey)) {
+                        sb.append(sectionKey).append('=').append(value).append('\n');
+                    }
+                }
+                key = sb.toString();
+                scratch.remove(section);
+            }
+            keyed.add(new AbstractMap.SimpleImmutableEntry<>(key, rawValue));
+        }
+        keyed.sort(Map.Entry.<String, Object>comparingByKey(Comparator.nullsFirst(Comparator.<String>naturalOrder())));
+        List<Object> result = new ArrayList<>(keyed.size());
+        for (Map.Entry<String, Object> entry : keyed) {
+            result.add(entry.getValue());
+        }
+        return result;
+    }
+
     private static Map<String, String> toMap(Profile.Section from) {
         Map<String, String> result = new HashMap<>();
         for (String key : from.keySet()) {
@@ -373,21 +806,16 @@ public class Garbanzo {
         return result;
     }
 
-    private static Ini readIni(String from) {
+    static Ini readIni(Reader from) throws IOException {
         Config iniConfig = buildIniConfig();
         IniParser parser = IniParser.newInstance(iniConfig);
         Ini ini = new Ini();
         ini.setConfig(iniConfig);
-        IniBuilder iniBuilder = IniBuilder.newInstance(ini);
-        try {
-            parser.parse(new StringReader(from), iniBuilder);
-        } catch (IOException e) {
-            throw new IllegalStateException(e);
-        }
+        parser.parse(from, IniBuilder.newInstance(ini));
         return ini;
     }
 
-    private static Config buildIniConfig() {
+    static Config buildIniConfig() {
         Config iniConfig = new Config();
         iniConfig.setMultiSection(true);
         iniConfig.setMultiOption(true);
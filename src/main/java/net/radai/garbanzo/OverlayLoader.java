@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2016 Radai Rosenblatt.
+ * This file is part of Garbanzo.
+ *
+ *  Garbanzo is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Garbanzo is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Garbanzo.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.radai.garbanzo;
+
+import net.radai.beanz.Beanz;
+import net.radai.beanz.api.Bean;
+import net.radai.beanz.api.Property;
+import net.radai.beanz.api.PropertyType;
+import org.ini4j.Ini;
+import org.ini4j.Profile;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * builds a single bean out of an ordered list of ini layers (say, a base file followed by environment and
+ * host overlays). layers are merged at the section/key level, and the merged result is bound once.
+ * how keys and sections are merged depends on the properties of the bean class they are bound to - only
+ * array and collection properties can be appended to, everything else is overridden by later layers.
+ * every layer is kept parsed, along with the merge of itself and all layers before it, so that replacing
+ * a layer only re-parses that layer and re-merges it and the layers after it. merges are cached for
+ * the last bean class loaded - loading a different class re-merges all layers.
+ * <br>
+ * not thread safe.
+ */
+public class OverlayLoader {
+
+    /**
+     * what to do when a key bound to an array or collection property is present in both a layer and the
+     * layers before it. keys bound to anything else are always replaced
+     */
+    public enum ValueMerge {
+        /**
+         * the values in the later layer replace the earlier ones
+         */
+        REPLACE,
+        /**
+         * the values in the later layer are added after the earlier ones
+         */
+        APPEND
+    }
+
+    /**
+     * what to do when a section bound to an array or collection property is present in both a layer and the
+     * layers before it. sections bound to a single bean or to a map are always merged key by key
+     */
+    public enum SectionMerge {
+        /**
+         * a section that appears once on both sides is merged key by key (see {@link ValueMerge}).
+         * repeated sections are replaced as a whole
+         */
+        MERGE,
+        /**
+         * the section instances in the later layer replace the earlier ones as a whole
+         */
+        REPLACE,
+        /**
+         * the section instances in the later layer are added after the earlier ones
+         */
+        APPEND
+    }
+
+    private final ValueMerge valueMerge;
+    private final SectionMerge sectionMerge;
+    private final List<Ini> layers = new ArrayList<>();
+    /**
+     * merged.get(i) is the result of merging layers 0..i. only the first validMerges entries are up to date
+     */
+    private final List<Ini> merged = new ArrayList<>();
+    private int validMerges = 0;
+    /**
+     * the bean class the current merges were made for
+     */
+    private Class<?> mergedFor;
+
+    public OverlayLoader() {
+        this(ValueMerge.REPLACE, SectionMerge.MERGE);
+    }
+
+    public OverlayLoader(ValueMerge valueMerge, SectionMerge sectionMerge) {
+        if (valueMerge == null || sectionMerge == null) {
+            throw new IllegalArgumentException("merge modes must be specified");
+        }
+        this.valueMerge = valueMerge;
+        this.sectionMerge = sectionMerge;
+    }
+
+    /**
+     * adds a layer on top of all existing layers
+     * @return the index of the new layer
+     */
+    public int addLayer(Reader from) throws IOException {
+        layers.add(Garbanzo.readIni(from));
+        merged.add(null);
+        return layers.size() - 1;
+    }
+
+    public int addLayer(String from) {
+        try {
+            return addLayer(new StringReader(from));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * replaces the contents of an existing layer. layers below it are not re-merged
+     */
+    public void setLayer(int index, Reader from) throws IOException {
+        if (index < 0 || index >= layers.size()) {
+            throw new IndexOutOfBoundsException("no layer " + index + " (there are " + layers.size() + ")");
+        }
+        layers.set(index, Garbanzo.readIni(from));
+        validMerges = Math.min(validMerges, index);
+    }
+
+    public void setLayer(int index, String from) {
+        try {
+            setLayer(index, new StringReader(from));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public int getLayerCount() {
+        return layers.size();
+    }
+
+    public <T> T load(Class<T> beanClass) {
+        if (layers.isEmpty()) {
+            return null;
+        }
+        if (beanClass != mergedFor) {
+            validMerges = 0;
+            mergedFor = beanClass;
+        }
+        return Garbanzo.bind(beanClass, getMerged(beanClass), null);
+    }
+
+    private Ini getMerged(Class<?> beanClass) {
+        Map<Class<?>, Bean<?>> schemas = new HashMap<>();
+        for (int i = validMerges; i < layers.size(); i++) {
+            Ini result;
+            if (i == 0) {
+                result = layers.get(0); //merges never modify their inputs, so no need to copy
+            } else {
+                result = copy(merged.get(i - 1));
+                merge(result, layers.get(i), beanClass, schemas);
+            }
+            merged.set(i, result);
+        }
+        validMerges = layers.size();
+        return merged.get(layers.size() - 1);
+    }
+
+    private void merge(Ini target, Ini overlay, Class<?> beanClass, Map<Class<?>, Bean<?>> schemas) {
+        Bean<?> bean = schema(beanClass, schemas);
+        for (String sectionName : overlay.keySet()) {
+            List<Profile.Section> overlaySections = overlay.getAll(sectionName);
+            List<Profile.Section> targetSections = target.getAll(sectionName);
+            if (targetSections == null || targetSections.isEmpty()) {
+                copySections(target, sectionName, overlaySections);
+                continue;
+            }
+            boolean single = targetSections.size() == 1 && overlaySections.size() == 1;
+            if (sectionName.equals(target.getConfig().getGlobalSectionName())) {
+                mergeSection(targetSections.get(0), overlaySections.get(0), bean);
+                continue;
+            }
+            Property property = Garbanzo.findProperty(bean, sectionName);
+            Bean<?> sectionBean = property != null ? schema(Garbanzo.sectionClass(property), schemas) : null;
+            if (!isMultiValued(property)) {
+                //a single bean or a map. null section beans mean map sections, where keys are just replaced
+                if (single) {
+                    mergeSection(targetSections.get(0), overlaySections.get(0), sectionBean);
+                } else { //would not bind anyway, unless a later layer fixes it
+                    target.remove(sectionName);
+                    copySections(target, sectionName, overlaySections);
+                }
+            } else if (sectionMerge == SectionMerge.MERGE && single) {
+                mergeSection(targetSections.get(0), overlaySections.get(0), sectionBean);
+            } else if (sectionMerge == SectionMerge.APPEND) {
+                copySections(target, sectionName, overlaySections);
+            } else {
+                target.remove(sectionName);
+                copySections(target, sectionName, overlaySections);
+            }
+        }
+    }
+
+    /**
+     * @param bean the bean the section is bound to, used to tell which keys are multi-valued.
+     *             null means all keys are single-valued
+     */
+    private void mergeSection(Profile.Section target, Profile.Section overlay, Bean<?> bean) {
+        for (String key : overlay.keySet()) {
+            List<String> values = overlay.getAll(key);
+            if (valueMerge == ValueMerge.APPEND && target.containsKey(key)
+                    && bean != null && isMultiValued(Garbanzo.findProperty(bean, key))) {
+                for (String value : values) {
+                    target.add(key, value);
+                }
+            } else {
+                target.putAll(key, values);
+            }
+        }
+    }
+
+    private static boolean isMultiValued(Property property) {
+        if (property == null) {
+            return false;
+        }
+        PropertyType type = property.getType();
+        return type == PropertyType.ARRAY || type == PropertyType.COLLECTION;
+    }
+
+    private static Bean<?> schema(Class<?> beanClass, Map<Class<?>, Bean<?>> schemas) {
+        if (beanClass == null) {
+            return null;
+        }
+        return schemas.computeIfAbsent(beanClass, Beanz::create);
+    }
+
+    private static Ini copy(Ini from) {
+        Ini to = new Ini();
+        to.setConfig(Garbanzo.buildIniConfig());
+        for (String sectionName : from.keySet()) {
+            copySections(to, sectionName, from.getAll(sectionName));
+        }
+        return to;
+    }
+
+    private static void copySections(Ini to, String sectionName, List<Profile.Section> from) {
+        for (Profile.Section section : from) {
+            Profile.Section target = to.add(sectionName);
+            for (String key : section.keySet()) {
+                target.putAll(key, section.getAll(key));
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2016 Radai Rosenblatt.
+ * This file is part of Garbanzo.
+ *
+ *  Garbanzo is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Garbanzo is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Garbanzo.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.radai.garbanzo;
+
+import net.radai.garbanzo.util.Inflection;
+import org.ini4j.spi.IniHandler;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * sits between the ini parser and the ini builder and drops everything not selected by a set of property paths
+ * (see {@link Garbanzo#unmarshall(Class, java.io.Reader, Set)}), so that unselected sections and keys never
+ * make it into the resulting ini. comments are always dropped, as they are never bound.
+ * sections that end up empty because all their keys were dropped are recorded (see {@link #getEmptiedSections()}),
+ * so that they are not mistaken for sections that were empty to begin with.
+ */
+class ProjectingIniHandler implements IniHandler {
+    private final IniHandler delegate;
+    private final String globalSectionName;
+    private final Set<String> wholeSections = new HashSet<>();
+    private final Map<String, Set<String>> sectionKeys = new HashMap<>();
+    /**
+     * keys selected in the section currently being parsed. null means all keys.
+     */
+    private Set<String> currentKeys;
+    private boolean skipping;
+    /**
+     * number of instances of every section name passed on so far
+     */
+    private final Map<String, Integer> sectionCounts = new HashMap<>();
+    private final Map<String, BitSet> emptiedSections = new HashMap<>();
+    private String currentSection;
+    private int currentIndex;
+    private boolean currentPassed;
+    private boolean currentDropped;
+
+    ProjectingIniHandler(IniHandler delegate, String globalSectionName, Set<String> propertyPaths) {
+        this.delegate = delegate;
+        this.globalSectionName = globalSectionName;
+        Set<String> globalKeys = new HashSet<>();
+        sectionKeys.put(globalSectionName, globalKeys);
+        for (String path : propertyPaths) {
+            int dot = path.indexOf('.');
+            if (dot < 0) {
+                //a top level prop may be a key (or multiple keys under a singular name) or a section (or sections)
+                addWithSingular(globalKeys, path);
+                addWithSingular(wholeSections, path);
+            } else {
+                String section = path.substring(0, dot);
+                String key = path.substring(dot + 1);
+                addWithSingular(sectionKeys.computeIfAbsent(section, k -> new HashSet<>()), key);
+                String singular = Inflection.singularize(section);
+                if (!singular.equals(section)) {
+                    addWithSingular(sectionKeys.computeIfAbsent(singular, k -> new HashSet<>()), key);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void startIni() {
+        delegate.startIni();
+    }
+
+    @Override
+    public void endIni() {
+        delegate.endIni();
+    }
+
+    @Override
+    public void startSection(String sectionName) {
+        if (!sectionName.equals(globalSectionName) && wholeSections.contains(sectionName)) {
+            currentKeys = null;
+            skipping = false;
+        } else {
+            currentKeys = sectionKeys.get(sectionName);
+            skipping = currentKeys == null;
+        }
+        if (!skipping) {
+            currentSection = sectionName;
+            currentIndex = sectionCounts.merge(sectionName, 1, Integer::sum) - 1;
+            currentPassed = false;
+            currentDropped = false;
+            delegate.startSection(sectionName);
+        }
+    }
+
+    @Override
+    public void endSection() {
+        if (!skipping) {
+            if (currentDropped && !currentPassed) {
+                emptiedSections.computeIfAbsent(currentSection, k -> new BitSet()).set(currentIndex);
+            }
+            delegate.endSection();
+        }
+        skipping = false;
+    }
+
+    @Override
+    public void handleComment(String comment) {
+        //not needed for unmarshalling
+    }
+
+    @Override
+    public void handleOption(String optionName, String optionValue) {
+        if (skipping) {
+            return;
+        }
+        if (currentKeys != null && !currentKeys.contains(optionName)) {
+            currentDropped = true;
+            return;
+        }
+        currentPassed = true;
+        delegate.handleOption(optionName, optionValue);
+    }
+
+    /**
+     * @return true if any of the section's contents are selected
+     */
+    boolean isSelected(String sectionName) {
+        return wholeSections.contains(sectionName) || sectionKeys.containsKey(sectionName);
+    }
+
+    /**
+     * @return for every section name, the indices (among the instances of that name passed on) of sections
+     * that were not empty in the input but had all of their keys dropped
+     */
+    Map<String, BitSet> getEmptiedSections() {
+        return emptiedSections;
+    }
+
+    private static void addWithSingular(Set<String> to, String name) {
+        to.add(name);
+        to.add(Inflection.singularize(name)); //collections are written out under the singular name
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2016 Radai Rosenblatt.
+ * This file is part of Garbanzo.
+ *
+ *  Garbanzo is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Garbanzo is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Garbanzo.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.radai.garbanzo;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.function.Predicate;
+
+/**
+ * drops whole sections from ini text before it reaches the ini parser. every line is scanned once, into a reused
+ * buffer - only section headers are turned into strings. the lines of sections that are not selected are never
+ * split into keys and values, unescaped or otherwise materialized. everything before the first header (the global
+ * section) is always kept. lines are passed on with "\n" line endings.
+ */
+class SectionSkippingReader extends Reader {
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final Reader in;
+    private final Predicate<String> selected;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int bufferPos;
+    private int bufferEnd;
+    private boolean skipLineFeed; //last line ended with \r, so a following \n is part of the same line ending
+    private boolean eof;
+    /**
+     * the current line. when serving, it includes the trailing "\n" and is being handed out from linePos
+     */
+    private char[] line = new char[256];
+    private int lineLength;
+    private int linePos;
+    private boolean serving;
+    private boolean skipping;
+    /**
+     * the previous line ended with an escaped line break, so the current line is a part of it
+     */
+    private boolean continuation;
+
+    SectionSkippingReader(Reader in, Predicate<String> selected) {
+        this.in = in;
+        this.selected = selected;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (!serving || linePos == lineLength) {
+            if (!nextLine()) {
+                return -1;
+            }
+        }
+        int count = Math.min(len, lineLength - linePos);
+        System.arraycopy(line, linePos, cbuf, off, count);
+        linePos += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * reads the next line and decides whether it's to be passed on
+     * @return false at the end of the input
+     */
+    private boolean nextLine() throws IOException {
+        if (!readLine()) {
+            return false;
+        }
+        boolean continues = endsWithEscape();
+        if (!continuation) {
+            int start = 0;
+            while (start < lineLength && Character.isWhitespace(line[start])) {
+                start++;
+            }
+            int end = lineLength - 1;
+            while (end > start && Character.isWhitespace(line[end])) {
+                end--;
+            }
+            if (end > start && line[start] == '[' && line[end] == ']') {
+                String sectionName = new String(line, start + 1, end - start - 1).trim();
+                //escaped names are left for the parser (and the projecting handler after it) to deal with
+                skipping = sectionName.indexOf('\\') < 0 && !selected.test(sectionName);
+            }
+        }
+        continuation = continues;
+        serving = !skipping;
+        if (serving) {
+            append('\n');
+            linePos = 0;
+        }
+        return true;
+    }
+
+    /**
+     * reads a line, without its line ending, into the line buffer
+     * @return false if there was nothing left to read
+     */
+    private boolean readLine() throws IOException {
+        lineLength = 0;
+        while (true) {
+            if (bufferPos == bufferEnd) {
+                if (eof || !fill()) {
+                    return lineLength > 0;
+                }
+            }
+            char c = buffer[bufferPos++];
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (c == '\n') {
+                    continue;
+                }
+            }
+            if (c == '\n') {
+                return true;
+            }
+            if (c == '\r') {
+                skipLineFeed = true;
+                return true;
+            }
+            append(c);
+        }
+    }
+
+    private boolean fill() throws IOException {
+        int read = in.read(buffer, 0, buffer.length);
+        if (read < 0) {
+            eof = true;
+            return false;
+        }
+        bufferPos = 0;
+        bufferEnd = read;
+        return true;
+    }
+
+    private void append(char c) {
+        if (lineLength == line.length) {
+            char[] bigger = new char[line.length * 2];
+            System.arraycopy(line, 0, bigger, 0, lineLength);
+            line = bigger;
+        }
+        line[lineLength++] = c;
+    }
+
+    /**
+     * @return true if the current line ends with an odd number of backslashes, which escape the line break
+     */
+    private boolean endsWithEscape() {
+        int count = 0;
+        for (int i = lineLength - 1; i >= 0 && line[i] == '\\'; i--) {
+            count++;
+        }
+        return count % 2 == 1;
+    }
+}
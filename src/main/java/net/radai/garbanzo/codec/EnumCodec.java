@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2016 Radai Rosenblatt.
+ * This file is part of Garbanzo.
+ *
+ *  Garbanzo is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Garbanzo is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Garbanzo.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.radai.garbanzo.codec;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * decodes enum constants by name using a table built once per enum class
+ */
+public class EnumCodec<E extends Enum<E>> implements ValueCodec<E> {
+    private final Class<E> enumClass;
+    private final Map<String, E> byName;
+
+    public EnumCodec(Class<E> enumClass) {
+        this.enumClass = enumClass;
+        E[] constants = enumClass.getEnumConstants();
+        this.byName = new HashMap<>(constants.length * 2);
+        for (E constant : constants) {
+            byName.put(constant.name(), constant);
+        }
+    }
+
+    @Override
+    public E decode(CharSequence from) {
+        E value = byName.get(from.toString()); //free if from is a String, which it usually is
+        if (value == null) {
+            throw new IllegalArgumentException("no enum constant " + enumClass.getCanonicalName() + "." + from);
+        }
+        return value;
+    }
+
+    @Override
+    public String encode(E value) {
+        return value.name();
+    }
+}
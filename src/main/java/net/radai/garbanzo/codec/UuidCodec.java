@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2016 Radai Rosenblatt.
+ * This file is part of Garbanzo.
+ *
+ *  Garbanzo is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Garbanzo is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Garbanzo.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.radai.garbanzo.codec;
+
+import java.util.UUID;
+
+/**
+ * reads the canonical 8-4-4-4-12 hex form directly, without splitting or substrings.
+ * writing is left to {@link UUID#toString()}
+ */
+public class UuidCodec implements ValueCodec<UUID> {
+    private static final int CANONICAL_LENGTH = 36;
+
+    @Override
+    public UUID decode(CharSequence from) {
+        if (from.length() != CANONICAL_LENGTH || from.charAt(8) != '-' || from.charAt(13) != '-'
+                || from.charAt(18) != '-' || from.charAt(23) != '-') {
+            return UUID.fromString(from.toString()); //non canonical, let the jdk deal with it (or fail)
+        }
+        long msb = parseHex(from, 0, 8) << 32 | parseHex(from, 9, 13) << 16 | parseHex(from, 14, 18);
+        long lsb = parseHex(from, 19, 23) << 48 | parseHex(from, 24, 36);
+        return new UUID(msb, lsb);
+    }
+
+    @Override
+    public String encode(UUID value) {
+        return value.toString();
+    }
+
+    private static long parseHex(CharSequence from, int start, int end) {
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(from.charAt(i), 16);
+            if (digit < 0) {
+                throw new IllegalArgumentException("invalid UUID string: " + from);
+            }
+            result = result << 4 | digit;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2016 Radai Rosenblatt.
+ * This file is part of Garbanzo.
+ *
+ *  Garbanzo is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Garbanzo is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Garbanzo.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.radai.garbanzo.codec;
+
+/**
+ * converts values of a specific type to and from their ini text form, without going through the generic
+ * (reflection based) codecs. implementations must produce the same text as the generic codecs do.
+ * decoding is never given nulls, and encoding is never given null values.
+ */
+public interface ValueCodec<T> {
+
+    T decode(CharSequence from);
+
+    String encode(T value);
+}
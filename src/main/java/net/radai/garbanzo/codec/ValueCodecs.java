@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2016 Radai Rosenblatt.
+ * This file is part of Garbanzo.
+ *
+ *  Garbanzo is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Garbanzo is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Garbanzo.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.radai.garbanzo.codec;
+
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * built-in {@link ValueCodec}s for common value types - strings, primitives and their boxes, enums and UUIDs.
+ * integral numbers and UUIDs are parsed straight off the input, without intermediate strings.
+ * dates are deliberately not covered - their text form is up to the generic codecs, and must not change.
+ */
+public class ValueCodecs {
+    public static final ValueCodec<String> STRING = new ValueCodec<String>() {
+        @Override
+        public String decode(CharSequence from) {
+            return from.toString();
+        }
+
+        @Override
+        public String encode(String value) {
+            return value;
+        }
+    };
+    public static final ValueCodec<Boolean> BOOLEAN = new ValueCodec<Boolean>() {
+        @Override
+        public Boolean decode(CharSequence from) {
+            //same as Boolean.parseBoolean() - anything other than "true" (in any case) is false
+            if (from.length() != 4) {
+                return Boolean.FALSE;
+            }
+            return Character.toLowerCase(from.charAt(0)) == 't' && Character.toLowerCase(from.charAt(1)) == 'r'
+                    && Character.toLowerCase(from.charAt(2)) == 'u' && Character.toLowerCase(from.charAt(3)) == 'e';
+        }
+
+        @Override
+        public String encode(Boolean value) {
+            return value.toString();
+        }
+    };
+    public static final ValueCodec<Byte> BYTE = new IntegralCodec<Byte>(Byte.MIN_VALUE, Byte.MAX_VALUE) {
+        @Override
+        protected Byte box(long value) {
+            return (byte) value;
+        }
+    };
+    public static final ValueCodec<Short> SHORT = new IntegralCodec<Short>(Short.MIN_VALUE, Short.MAX_VALUE) {
+        @Override
+        protected Short box(long value) {
+            return (short) value;
+        }
+    };
+    public static final ValueCodec<Integer> INTEGER = new IntegralCodec<Integer>(Integer.MIN_VALUE, Integer.MAX_VALUE) {
+        @Override
+        protected Integer box(long value) {
+            return (int) value;
+        }
+    };
+    public static final ValueCodec<Long> LONG = new IntegralCodec<Long>(Long.MIN_VALUE, Long.MAX_VALUE) {
+        @Override
+        protected Long box(long value) {
+            return value;
+        }
+    };
+    public static final ValueCodec<Float> FLOAT = new ValueCodec<Float>() {
+        @Override
+        public Float decode(CharSequence from) {
+            return Float.parseFloat(from.toString());
+        }
+
+        @Override
+        public String encode(Float value) {
+            return value.toString();
+        }
+    };
+    public static final ValueCodec<Double> DOUBLE = new ValueCodec<Double>() {
+        @Override
+        public Double decode(CharSequence from) {
+            return Double.parseDouble(from.toString());
+        }
+
+        @Override
+        public String encode(Double value) {
+            return value.toString();
+        }
+    };
+    public static final ValueCodec<UUID> UUID_CODEC = new UuidCodec();
+
+    private static final Map<Class<?>, ValueCodec<?>> codecs = new HashMap<>();
+    private static final ClassValue<EnumCodec<?>> enumCodecs = new ClassValue<EnumCodec<?>>() {
+        @Override
+        protected EnumCodec<?> computeValue(Class<?> type) {
+            return newEnumCodec(type);
+        }
+    };
+
+    static {
+        codecs.put(String.class, STRING);
+        codecs.put(boolean.class, BOOLEAN);
+        codecs.put(Boolean.class, BOOLEAN);
+        codecs.put(byte.class, BYTE);
+        codecs.put(Byte.class, BYTE);
+        codecs.put(short.class, SHORT);
+        codecs.put(Short.class, SHORT);
+        codecs.put(int.class, INTEGER);
+        codecs.put(Integer.class, INTEGER);
+        codecs.put(long.class, LONG);
+        codecs.put(Long.class, LONG);
+        codecs.put(float.class, FLOAT);
+        codecs.put(Float.class, FLOAT);
+        codecs.put(double.class, DOUBLE);
+        codecs.put(Double.class, DOUBLE);
+        codecs.put(UUID.class, UUID_CODEC);
+    }
+
+    private ValueCodecs() {
+        //utility class
+    }
+
+    /**
+     * @return a built-in codec for the given type, or null if there is none (and the generic codecs should be used)
+     */
+    public static ValueCodec<?> forType(Type type) {
+        if (!(type instanceof Class)) {
+            return null;
+        }
+        Class<?> clazz = (Class<?>) type;
+        ValueCodec<?> codec = codecs.get(clazz);
+        if (codec == null && clazz.isEnum()) {
+            codec = enumCodecs.get(clazz);
+        }
+        return codec;
+    }
+
+    /**
+     * @param type must be an enum class
+     */
+    @SuppressWarnings("unchecked")
+    private static <E extends Enum<E>> EnumCodec<E> newEnumCodec(Class<?> type) {
+        return new EnumCodec<>((Class<E>) type);
+    }
+
+    private abstract static class IntegralCodec<T extends Number> implements ValueCodec<T> {
+        private final long min;
+        private final long max;
+
+        IntegralCodec(long min, long max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        protected abstract T box(long value);
+
+        @Override
+        public T decode(CharSequence from) {
+            //same rules as Long.parseLong(), accumulating negatively so that min can be represented
+            int length = from.length();
+            if (length == 0) {
+                throw new NumberFormatException("For input string: \"\"");
+            }
+            int i = 0;
+            boolean negative = false;
+            char first = from.charAt(0);
+            if (first == '-' || first == '+') {
+                negative = first == '-';
+                i++;
+                if (length == 1) {
+                    throw new NumberFormatException("For input string: \"" + from + "\"");
+                }
+            }
+            long limit = negative ? min : -max;
+            long multMin = limit / 10;
+            long result = 0;
+            for (; i < length; i++) {
+                int digit = Character.digit(from.charAt(i), 10);
+                if (digit < 0 || result < multMin) {
+                    throw new NumberFormatException("For input string: \"" + from + "\"");
+                }
+                result *= 10;
+                if (result < limit + digit) {
+                    throw new NumberFormatException("For input string: \"" + from + "\"");
+                }
+                result -= digit;
+            }
+            return box(negative ? result : -result);
+        }
+
+        @Override
+        public String encode(T value) {
+            return value.toString();
+        }
+    }
+}
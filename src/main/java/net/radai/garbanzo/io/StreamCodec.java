@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2016 Radai Rosenblatt.
+ * This file is part of Garbanzo.
+ *
+ *  Garbanzo is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Garbanzo is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Garbanzo.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.radai.garbanzo.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * a (typically compression) codec applied to the raw bytes of an ini stream.
+ * additional implementations can be made available to {@link StreamCodecs} by listing them in
+ * META-INF/services/net.radai.garbanzo.io.StreamCodec
+ */
+public interface StreamCodec {
+
+    /**
+     * @return a unique name for this codec, for lookup via {@link StreamCodecs#forName(String)}
+     */
+    String getName();
+
+    /**
+     * @return the file extension (without a leading dot) used for files encoded with this codec
+     */
+    String getFileExtension();
+
+    /**
+     * @return a stream that decodes the given stream as it is read
+     */
+    InputStream decode(InputStream in) throws IOException;
+
+    /**
+     * @return a stream that encodes into the given stream as it is written. closing the returned stream
+     * must finish the encoding and close the given stream
+     */
+    OutputStream encode(OutputStream out) throws IOException;
+}
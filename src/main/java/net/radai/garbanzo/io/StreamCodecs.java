@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2016 Radai Rosenblatt.
+ * This file is part of Garbanzo.
+ *
+ *  Garbanzo is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Garbanzo is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Garbanzo.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.radai.garbanzo.io;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * registry of available {@link StreamCodec}s - gzip, plus anything registered via {@link ServiceLoader}
+ */
+public class StreamCodecs {
+    public static final StreamCodec GZIP = new GzipStreamCodec();
+
+    private static final Map<String, StreamCodec> byName;
+    private static final Map<String, StreamCodec> byExtension;
+
+    static {
+        Map<String, StreamCodec> names = new LinkedHashMap<>();
+        Map<String, StreamCodec> extensions = new LinkedHashMap<>();
+        register(GZIP, names, extensions);
+        for (StreamCodec codec : ServiceLoader.load(StreamCodec.class)) {
+            register(codec, names, extensions);
+        }
+        byName = Collections.unmodifiableMap(names);
+        byExtension = Collections.unmodifiableMap(extensions);
+    }
+
+    private StreamCodecs() {
+        //utility class
+    }
+
+    /**
+     * @return the codec with the given name, or null if there is none
+     */
+    public static StreamCodec forName(String name) {
+        return byName.get(name);
+    }
+
+    /**
+     * @return the codec matching the extension of the given file name, or null if the file is not encoded
+     */
+    public static StreamCodec forFileName(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        return byExtension.get(fileName.substring(dot + 1));
+    }
+
+    private static void register(StreamCodec codec, Map<String, StreamCodec> names, Map<String, StreamCodec> extensions) {
+        if (names.putIfAbsent(codec.getName(), codec) != null) {
+            return; //first one wins, so built-ins cannot be overridden
+        }
+        extensions.putIfAbsent(codec.getFileExtension(), codec);
+    }
+}
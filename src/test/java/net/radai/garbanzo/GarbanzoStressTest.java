@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2016 Radai Rosenblatt.
+ * This file is part of Garbanzo.
+ *
+ *  Garbanzo is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Garbanzo is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Garbanzo.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.radai.garbanzo;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * round-trips generated configs of increasing size (16KB and up, by factors of 4, always ending with maxBytes)
+ * and checks correctness, time and heap budgets, and regressions against a recorded baseline.
+ * not part of the regular test run - run with "gradle stressTest". settings (all system properties):
+ * <ul>
+ *     <li>garbanzo.stress.maxBytes - size of the largest config generated. default 16MB. the full run is
+ *     -Dgarbanzo.stress.maxBytes=268435456 (256MB), which may need more heap (-Dgarbanzo.stress.heap=8g)</li>
+ *     <li>garbanzo.stress.baseline - baseline json file. the stressTest task points this at
+ *     src/test/resources/stress-baseline.json. the run fails if it is missing</li>
+ *     <li>garbanzo.stress.updateBaseline - record the results of this run into the baseline (creating it
+ *     if needed) instead of comparing against it. default false</li>
+ *     <li>garbanzo.stress.threshold - allowed relative regression vs the baseline. default 0.25</li>
+ *     <li>garbanzo.stress.millisPerMB / garbanzo.stress.heapFactor - absolute time and (peak heap / config size)
+ *     budgets. defaults 5000 and 50</li>
+ * </ul>
+ */
+@Test(groups = "stress")
+public class GarbanzoStressTest {
+    private static final Logger log = LogManager.getLogger(GarbanzoStressTest.class);
+    private static final long KB = 1024;
+    private static final long MB = 1024 * KB;
+    /**
+     * rough size of the ini text generated per unit (1 section + 1 list value + 1 map entry)
+     */
+    private static final int BYTES_PER_UNIT = 180;
+    /**
+     * regressions smaller than these are noise, regardless of the relative threshold
+     */
+    private static final long MILLIS_SLACK = 100;
+    private static final long HEAP_SLACK = 16 * MB;
+
+    private final Path outputDir = Paths.get(System.getProperty("garbanzo.stress.outputDir", "build/stress"));
+    private final long maxBytes = Long.getLong("garbanzo.stress.maxBytes", 16 * MB);
+    private final Path baselineFile = Paths.get(System.getProperty("garbanzo.stress.baseline",
+            "src/test/resources/stress-baseline.json"));
+    private final boolean updateBaseline = Boolean.getBoolean("garbanzo.stress.updateBaseline");
+    private final double threshold = Double.parseDouble(System.getProperty("garbanzo.stress.threshold", "0.25"));
+    private final long millisPerMB = Long.getLong("garbanzo.stress.millisPerMB", 5000);
+    private final long heapFactor = Long.getLong("garbanzo.stress.heapFactor", 50);
+    private final Map<String, Result> results = new TreeMap<>();
+
+    @DataProvider
+    public Object[][] sizes() {
+        List<Object[]> sizes = new ArrayList<>();
+        long size = 16 * KB;
+        for (; size < maxBytes; size *= 4) {
+            sizes.add(new Object[] {size});
+        }
+        sizes.add(new Object[] {maxBytes}); //always run the largest size asked for
+        return sizes.toArray(new Object[sizes.size()][]);
+    }
+
+    @Test(dataProvider = "sizes")
+    public void testRoundTrip(long targetBytes) throws Exception {
+        String tier = tierName(targetBytes);
+        StressConfig original = generate(targetBytes, new Random(targetBytes)); //fixed seed so runs are comparable
+        Path file = Files.createTempFile("garbanzo-stress", ".ini");
+        try {
+            Result result = new Result();
+            resetPeakHeap();
+            long start = System.nanoTime();
+            Garbanzo.marshal(original, file);
+            result.marshalMillis = (System.nanoTime() - start) / 1000000;
+            result.bytes = Files.size(file);
+
+            start = System.nanoTime();
+            StressConfig deserialized = Garbanzo.unmarshall(StressConfig.class, file);
+            result.unmarshallMillis = (System.nanoTime() - start) / 1000000;
+            result.peakHeapBytes = peakHeap();
+            log.info("{}: {}", tier, result);
+
+            Assert.assertEquals(deserialized, original, tier + " did not round-trip");
+            long millisBudget = Math.max(MILLIS_SLACK, millisPerMB * result.bytes / MB);
+            Assert.assertTrue(result.marshalMillis + result.unmarshallMillis <= millisBudget,
+                    tier + " took longer than the " + millisBudget + "ms budget: " + result);
+            long heapBudget = Math.max(HEAP_SLACK, heapFactor * result.bytes);
+            Assert.assertTrue(result.peakHeapBytes <= heapBudget,
+                    tier + " used more than the " + heapBudget + " bytes heap budget: " + result);
+            results.put(tier, result);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void compareToBaseline() throws IOException {
+        if (results.isEmpty()) {
+            return;
+        }
+        Files.createDirectories(outputDir);
+        write(results, outputDir.resolve("stress-results.json"));
+        if (updateBaseline) {
+            Map<String, Result> baseline = Files.exists(baselineFile) ? read(baselineFile) : new TreeMap<>();
+            baseline.putAll(results); //keep tiers not run this time
+            log.info("recording baseline to {}", baselineFile);
+            write(baseline, baselineFile);
+            return;
+        }
+        Assert.assertTrue(Files.exists(baselineFile), "no stress baseline at " + baselineFile.toAbsolutePath()
+                + ". record one with -Dgarbanzo.stress.updateBaseline=true");
+        Map<String, Result> baseline = read(baselineFile);
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, Result> entry : results.entrySet()) {
+            Result previous = baseline.get(entry.getKey());
+            if (previous == null) {
+                log.warn("no baseline for {} in {}, not checked for regressions", entry.getKey(), baselineFile);
+                continue;
+            }
+            Result current = entry.getValue();
+            check(regressions, entry.getKey() + " marshal time", current.marshalMillis, previous.marshalMillis, MILLIS_SLACK);
+            check(regressions, entry.getKey() + " unmarshall time", current.unmarshallMillis, previous.unmarshallMillis, MILLIS_SLACK);
+            check(regressions, entry.getKey() + " peak heap", current.peakHeapBytes, previous.peakHeapBytes, HEAP_SLACK);
+        }
+        Assert.assertTrue(regressions.isEmpty(), "regressions vs " + baselineFile + ": " + regressions);
+    }
+
+    private void check(List<String> regressions, String what, long current, long previous, long slack) {
+        if (current > previous * (1 + threshold) && current - previous > slack) {
+            regressions.add(what + " went from " + previous + " to " + current);
+        }
+    }
+
+    private static StressConfig generate(long targetBytes, Random random) {
+        int units = (int) Math.max(1, targetBytes / BYTES_PER_UNIT);
+        StressConfig config = new StressConfig();
+        config.name = "stress " + targetBytes;
+        config.values = new ArrayList<>(units);
+        config.entries = new ArrayList<>(units);
+        config.lookup = new HashMap<>(units * 2);
+        for (int i = 0; i < units; i++) {
+            config.values.add(random.nextLong());
+            StressEntry entry = new StressEntry();
+            entry.id = "entry-" + i;
+            entry.weight = random.nextDouble();
+            entry.level = StressLevel.values()[random.nextInt(StressLevel.values().length)];
+            entry.tags = Arrays.asList("tag" + random.nextInt(100), "tag" + random.nextInt(100));
+            config.entries.add(entry);
+            config.lookup.put(new UUID(random.nextLong(), random.nextLong()), entry.level);
+        }
+        return config;
+    }
+
+    /**
+     * @return an exact name for the given size, so that no two sizes share a name (and a baseline entry)
+     */
+    private static String tierName(long bytes) {
+        if (bytes % MB == 0) {
+            return (bytes / MB) + "MB";
+        }
+        if (bytes % KB == 0) {
+            return (bytes / KB) + "KB";
+        }
+        return bytes + "B";
+    }
+
+    private static void resetPeakHeap() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static void write(Map<String, Result> results, Path to) throws IOException {
+        StringBuilder sb = new StringBuilder("{\n");
+        Iterator<Map.Entry<String, Result>> iterator = results.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Result> entry = iterator.next();
+            Result result = entry.getValue();
+            sb.append("  \"").append(entry.getKey()).append("\": {")
+                    .append("\"bytes\": ").append(result.bytes)
+                    .append(", \"marshalMillis\": ").append(result.marshalMillis)
+                    .append(", \"unmarshallMillis\": ").append(result.unmarshallMillis)
+                    .append(", \"peakHeapBytes\": ").append(result.peakHeapBytes)
+                    .append("}").append(iterator.hasNext() ? ",\n" : "\n");
+        }
+        sb.append("}\n");
+        Path parent = to.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.write(to, sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, Result> read(Path from) throws IOException {
+        //only needs to read what write() produces
+        String json = new String(Files.readAllBytes(from), StandardCharsets.UTF_8);
+        Map<String, Result> results = new TreeMap<>();
+        Matcher tiers = Pattern.compile("\"(\\w+)\"\\s*:\\s*\\{([^}]*)}").matcher(json);
+        while (tiers.find()) {
+            Map<String, Long> fields = new HashMap<>();
+            Matcher values = Pattern.compile("\"(\\w+)\"\\s*:\\s*(\\d+)").matcher(tiers.group(2));
+            while (values.find()) {
+                fields.put(values.group(1), Long.parseLong(values.group(2)));
+            }
+            Result result = new Result();
+            result.bytes = fields.getOrDefault("bytes", 0L);
+            result.marshalMillis = fields.getOrDefault("marshalMillis", 0L);
+            result.unmarshallMillis = fields.getOrDefault("unmarshallMillis", 0L);
+            result.peakHeapBytes = fields.getOrDefault("peakHeapBytes", 0L);
+            results.put(tiers.group(1), result);
+        }
+        return results;
+    }
+
+    private static class Result {
+        private long bytes;
+        private long marshalMillis;
+        private long unmarshallMillis;
+        private long peakHeapBytes;
+
+        @Override
+        public String toString() {
+            return bytes + " bytes, marshal " + marshalMillis + "ms, unmarshall " + unmarshallMillis
+                    + "ms, peak heap " + peakHeapBytes + " bytes";
+        }
+    }
+
+    public enum StressLevel {
+        LOW, MEDIUM, HIGH
+    }
+
+    public static class StressConfig {
+        private String name;
+        private List<Long> values;
+        private List<StressEntry> entries;
+        private Map<UUID, StressLevel> lookup;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            StressConfig that = (StressConfig) o;
+            return Objects.equals(name, that.name) &&
+                    Objects.equals(values, that.values) &&
+                    Objects.equals(entries, that.entries) &&
+                    Objects.equals(lookup, that.lookup);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, values, entries, lookup);
+        }
+    }
+
+    public static class StressEntry {
+        private String id;
+        private double weight;
+        private StressLevel level;
+        private List<String> tags;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            StressEntry that = (StressEntry) o;
+            return Double.compare(that.weight, weight) == 0 &&
+                    Objects.equals(id, that.id) &&
+                    level == that.level &&
+                    Objects.equals(tags, that.tags);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, weight, level, tags);
+        }
+    }
+}
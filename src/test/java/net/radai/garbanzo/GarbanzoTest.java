@@ -19,10 +19,18 @@
 package net.radai.garbanzo;
 
 import net.radai.garbanzo.annotations.IniComment;
+import net.radai.garbanzo.io.StreamCodecs;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.util.*;
 
 /**
@@ -95,6 +103,125 @@ public class GarbanzoTest {
                 serialized);
     }
 
+    @Test
+    public void testCanonical() throws Exception {
+        CanonicalClass a = new CanonicalClass();
+        a.set = new LinkedHashSet<>(Arrays.asList("c", "a", "b"));
+        a.list = new ArrayList<>(Arrays.asList("z", "y"));
+        a.map = new LinkedHashMap<>();
+        a.map.put("k2", 2);
+        a.map.put("k1", 1);
+        CanonicalClass b = new CanonicalClass();
+        b.set = new LinkedHashSet<>(Arrays.asList("b", "c", "a"));
+        b.list = new ArrayList<>(Arrays.asList("z", "y"));
+        b.map = new LinkedHashMap<>();
+        b.map.put("k1", 1);
+        b.map.put("k2", 2);
+
+        String canonical = Garbanzo.marshalCanonical(a);
+        Assert.assertEquals(canonical, Garbanzo.marshalCanonical(b));
+        Assert.assertFalse(canonical.contains("\r"));
+        Assert.assertTrue(canonical.indexOf("set = a") < canonical.indexOf("set = b"));
+        Assert.assertTrue(canonical.indexOf("set = b") < canonical.indexOf("set = c"));
+        Assert.assertTrue(canonical.indexOf("list = z") < canonical.indexOf("list = y")); //lists keep their order
+        Assert.assertTrue(canonical.indexOf("k1 = 1") < canonical.indexOf("k2 = 2"));
+        Assert.assertEquals(Garbanzo.unmarshall(CanonicalClass.class, canonical), a);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] digest = Garbanzo.marshalCanonical(a, out);
+        byte[] bytes = out.toByteArray();
+        Assert.assertEquals(new String(bytes, StandardCharsets.UTF_8), canonical);
+        Assert.assertEquals(digest, MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+
+    @Test
+    public void testProjection() throws Exception {
+        BeanClass original = new BeanClass();
+        original.f1 = "a";
+        original.f2 = "b";
+        original.f3 = 3.0;
+        original.f5 = UUID.randomUUID();
+        original.f7 = new ArrayList<>(Arrays.asList(1L, 2L));
+        original.f8 = new HashMap<>();
+        original.f8.put(Enum1.V1, (short) 7);
+        original.f9 = new ArrayList<>();
+        InnerBeanClass inner = new InnerBeanClass();
+        inner.f1 = "bob";
+        original.f9.add(inner);
+
+        String serialized = Garbanzo.marshal(original);
+        Set<String> paths = new HashSet<>(Arrays.asList("f2", "f7", "f8"));
+        BeanClass projected = Garbanzo.unmarshall(BeanClass.class, new StringReader(serialized), paths);
+
+        BeanClass expected = new BeanClass();
+        expected.f2 = original.f2;
+        expected.f7 = original.f7;
+        expected.f8 = original.f8;
+        Assert.assertEquals(projected, expected);
+
+        DocumentedClass outer = new DocumentedClass();
+        outer.f1 = "a";
+        DocumentedInnerClass documentedInner = new DocumentedInnerClass();
+        documentedInner.f1 = "bob";
+        outer.f4 = documentedInner;
+        serialized = Garbanzo.marshal(outer);
+        DocumentedClass projectedOuter = Garbanzo.unmarshall(DocumentedClass.class, new StringReader(serialized),
+                Collections.singleton("f4.f1"));
+        Assert.assertNull(projectedOuter.f1);
+        Assert.assertEquals(projectedOuter.f4.f1, "bob");
+
+        //elements missing the selected key are still there, as empty beans. only actual nulls stay null
+        ProjectedClass withList = new ProjectedClass();
+        withList.entries = new ArrayList<>();
+        withList.entries.add(new ProjectedEntry("a", null));
+        withList.entries.add(new ProjectedEntry("b", 3));
+        withList.entries.add(null);
+        serialized = Garbanzo.marshal(withList);
+        ProjectedClass projectedList = Garbanzo.unmarshall(ProjectedClass.class, new StringReader(serialized),
+                Collections.singleton("entries.z"));
+        Assert.assertEquals(projectedList.entries,
+                Arrays.asList(new ProjectedEntry(null, null), new ProjectedEntry(null, 3), null));
+    }
+
+    @Test
+    public void testProjectionInvalidPaths() throws Exception {
+        String serialized = Garbanzo.marshal(new DocumentedClass());
+        for (String path : new String[] {"nope", "f1.f1", "f4.nope", "f4.f1.f1", "f4."}) {
+            try {
+                Garbanzo.unmarshall(DocumentedClass.class, new StringReader(serialized), Collections.singleton(path));
+                Assert.fail("accepted " + path);
+            } catch (IllegalArgumentException expected) {
+                //expected
+            }
+        }
+    }
+
+    @Test
+    public void testCompressed() throws Exception {
+        CanonicalClass original = new CanonicalClass();
+        original.list = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            original.list.add("value " + i);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Garbanzo.marshal(original, out, StreamCodecs.GZIP);
+        byte[] compressed = out.toByteArray();
+        Assert.assertTrue(compressed.length < Garbanzo.marshal(original).length());
+        CanonicalClass deserialized = Garbanzo.unmarshall(CanonicalClass.class,
+                new ByteArrayInputStream(compressed), StreamCodecs.forName("gzip"));
+        Assert.assertEquals(deserialized, original);
+
+        Path file = Files.createTempFile("garbanzo", ".ini.gz");
+        try {
+            Garbanzo.marshal(original, file);
+            Assert.assertEquals(Files.readAllBytes(file)[0], (byte) 0x1f); //gzip magic
+            Assert.assertEquals(Garbanzo.unmarshall(CanonicalClass.class, file), original);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
     public enum Enum1 {
         V1, V2
     }
@@ -132,6 +259,58 @@ public class GarbanzoTest {
         }
     }
 
+    public static class CanonicalClass {
+        private Set<String> set;
+        private List<String> list;
+        private Map<String, Integer> map;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            CanonicalClass that = (CanonicalClass) o;
+            return Objects.equals(set, that.set) &&
+                    Objects.equals(list, that.list) &&
+                    Objects.equals(map, that.map);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(set, list, map);
+        }
+    }
+
+    public static class ProjectedClass {
+        private List<ProjectedEntry> entries;
+    }
+
+    public static class ProjectedEntry {
+        private String y;
+        private Integer z;
+
+        public ProjectedEntry() {
+        }
+
+        public ProjectedEntry(String y, Integer z) {
+            this.y = y;
+            this.z = z;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            ProjectedEntry that = (ProjectedEntry) o;
+            return Objects.equals(y, that.y) &&
+                    Objects.equals(z, that.z);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(y, z);
+        }
+    }
+
     public static class InnerBeanClass {
         private String f1;
 
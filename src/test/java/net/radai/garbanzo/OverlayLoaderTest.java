@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2016 Radai Rosenblatt.
+ * This file is part of Garbanzo.
+ *
+ *  Garbanzo is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Garbanzo is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Garbanzo.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.radai.garbanzo;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Created by Radai Rosenblatt
+ */
+public class OverlayLoaderTest {
+
+    @Test
+    public void testReplace() throws Exception {
+        OverlayLoader loader = new OverlayLoader();
+        loader.addLayer("name = base\nport = 1\nport = 2\n[inner]\na = base-a\nb = base-b\n");
+        loader.addLayer("port = 3\n[inner]\nb = host-b\n");
+
+        LayeredClass loaded = loader.load(LayeredClass.class);
+        Assert.assertEquals(loaded.name, "base");
+        Assert.assertEquals(loaded.ports, Arrays.asList(3));
+        Assert.assertEquals(loaded.inner.a, "base-a");
+        Assert.assertEquals(loaded.inner.b, "host-b");
+    }
+
+    @Test
+    public void testAppend() throws Exception {
+        OverlayLoader loader = new OverlayLoader(OverlayLoader.ValueMerge.APPEND, OverlayLoader.SectionMerge.APPEND);
+        loader.addLayer("port = 1\n[element]\na = 1\n");
+        loader.addLayer("port = 2\n[element]\na = 2\n");
+
+        LayeredClass loaded = loader.load(LayeredClass.class);
+        Assert.assertEquals(loaded.ports, Arrays.asList(1, 2));
+        Assert.assertEquals(loaded.elements.size(), 2);
+        Assert.assertEquals(loaded.elements.get(0).a, "1");
+        Assert.assertEquals(loaded.elements.get(1).a, "2");
+    }
+
+    @Test
+    public void testAppendOverridesSingleValues() throws Exception {
+        OverlayLoader loader = new OverlayLoader(OverlayLoader.ValueMerge.APPEND, OverlayLoader.SectionMerge.APPEND);
+        loader.addLayer("name = base\nport = 1\n[inner]\na = base-a\nb = base-b\n[element]\na = 1\n");
+        loader.addLayer("name = env\nport = 2\n[inner]\nb = env-b\n[element]\na = 2\n");
+
+        LayeredClass loaded = loader.load(LayeredClass.class);
+        Assert.assertEquals(loaded.name, "env");
+        Assert.assertEquals(loaded.ports, Arrays.asList(1, 2));
+        Assert.assertEquals(loaded.inner.a, "base-a");
+        Assert.assertEquals(loaded.inner.b, "env-b");
+        Assert.assertEquals(loaded.elements.size(), 2);
+    }
+
+    @Test
+    public void testSetLayer() throws Exception {
+        OverlayLoader loader = new OverlayLoader();
+        loader.addLayer("name = base\n");
+        int env = loader.addLayer("name = env\n");
+        loader.addLayer("port = 7\n");
+        Assert.assertEquals(loader.load(LayeredClass.class).name, "env");
+
+        loader.setLayer(env, "port = 8\n");
+        LayeredClass loaded = loader.load(LayeredClass.class);
+        Assert.assertEquals(loaded.name, "base");
+        Assert.assertEquals(loaded.ports, Arrays.asList(7));
+    }
+
+    public static class LayeredClass {
+        private String name;
+        private List<Integer> ports;
+        private InnerClass inner;
+        private List<InnerClass> elements;
+    }
+
+    public static class InnerClass {
+        private String a;
+        private String b;
+    }
+}
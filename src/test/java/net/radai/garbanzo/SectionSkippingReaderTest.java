@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2016 Radai Rosenblatt.
+ * This file is part of Garbanzo.
+ *
+ *  Garbanzo is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Garbanzo is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Garbanzo.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.radai.garbanzo;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * Created by Radai Rosenblatt
+ */
+public class SectionSkippingReaderTest {
+
+    @Test
+    public void testSkipsUnselectedSections() throws Exception {
+        String input = "g = 1\r\n" +
+                "[keep]\r\n" +
+                "a = 1\n" +
+                "[drop]\n" +
+                "b = 2\\\n" +
+                "[continued]\n" +
+                "c = 3\n" +
+                "  [ keep ]  \n" +
+                "d = 4\n" +
+                "[drop]\n" +
+                "e = 5";
+        Reader reader = new SectionSkippingReader(new StringReader(input), "keep"::equals);
+        StringBuilder sb = new StringBuilder();
+        char[] buffer = new char[3]; //smaller than a line
+        int read;
+        while ((read = reader.read(buffer, 0, buffer.length)) >= 0) {
+            sb.append(buffer, 0, read);
+        }
+        Assert.assertEquals(sb.toString(), "g = 1\n[keep]\na = 1\n  [ keep ]  \nd = 4\n");
+    }
+}
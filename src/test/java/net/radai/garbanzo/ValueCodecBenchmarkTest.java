@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2016 Radai Rosenblatt.
+ * This file is part of Garbanzo.
+ *
+ *  Garbanzo is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Garbanzo is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Garbanzo.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.radai.garbanzo;
+
+import net.radai.beanz.Beanz;
+import net.radai.beanz.api.ArrayProperty;
+import net.radai.beanz.api.Bean;
+import net.radai.beanz.api.MapProperty;
+import net.radai.beanz.api.Property;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * compares allocations per value conversion between the generic beanz codecs and the built-in ValueCodecs,
+ * both driven the way Garbanzo drives them. not part of the regular test run - run with "gradle benchmark"
+ */
+@Test(groups = "benchmark")
+public class ValueCodecBenchmarkTest {
+    private static final Logger log = LogManager.getLogger(ValueCodecBenchmarkTest.class);
+    private static final int ITERATIONS = 100000;
+    /**
+     * per-op differences smaller than this are measurement noise
+     */
+    private static final double TOLERANCE_BYTES = 8;
+
+    private volatile Object sink;
+    private double genericTotal;
+    private double builtInTotal;
+
+    @Test
+    public void benchmarkAllocations() throws Exception {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean)
+                || !((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()) {
+            throw new SkipException("allocation measurement not supported by this jvm");
+        }
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threadBean;
+
+        Bean<BenchmarkBean> bean = Beanz.create(BenchmarkBean.class);
+        Property id = bean.getProperty("id");
+        Property level = bean.getProperty("level");
+        Property count = bean.getProperty("count");
+        MapProperty lookup = (MapProperty) bean.getProperty("lookup");
+        ArrayProperty numbers = (ArrayProperty) bean.getProperty("numbers");
+        List<String> numberStrings = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            numberStrings.add(Integer.toString(i * 1000));
+        }
+        String uuid = UUID.randomUUID().toString();
+        Map<String, String> lookupStrings = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            lookupStrings.put(UUID.randomUUID().toString(), BenchmarkLevel.values()[i % 3].name());
+        }
+
+        //encode cases rely on the values set by the decode cases before them
+        measure(allocations, "UUID decode", () -> id.setFromString(uuid),
+                () -> Garbanzo.setFromString(id, uuid));
+        measure(allocations, "enum decode", () -> level.setFromString("HIGH"),
+                () -> Garbanzo.setFromString(level, "HIGH"));
+        measure(allocations, "long decode", () -> count.setFromString("1234567890123"),
+                () -> Garbanzo.setFromString(count, "1234567890123"));
+        measure(allocations, "UUID encode", () -> sink = id.getAsString(),
+                () -> sink = Garbanzo.getAsString(id));
+        measure(allocations, "enum encode", () -> sink = level.getAsString(),
+                () -> sink = Garbanzo.getAsString(level));
+        measure(allocations, "int[] decode", () -> numbers.setFromStrings(numberStrings),
+                () -> Garbanzo.setFromStrings(numbers, numberStrings));
+        measure(allocations, "int[] encode", () -> sink = numbers.getAsStrings(),
+                () -> sink = Garbanzo.getAsStrings(numbers));
+        measure(allocations, "Map<UUID, Enum> decode", () -> lookup.setFromStrings(lookupStrings),
+                () -> Garbanzo.setFromStrings(lookup, lookupStrings));
+        measure(allocations, "Map<UUID, Enum> encode", () -> sink = lookup.getAsStrings(),
+                () -> sink = Garbanzo.getAsStrings(lookup));
+
+        log.info("total: {} bytes generic, {} bytes built-in", genericTotal, builtInTotal);
+        Assert.assertTrue(builtInTotal < genericTotal, "built-in codecs did not reduce allocations");
+    }
+
+    private void measure(com.sun.management.ThreadMXBean allocations, String name, Runnable generic, Runnable builtIn) {
+        double genericBytes = allocatedPerOp(allocations, generic);
+        double builtInBytes = allocatedPerOp(allocations, builtIn);
+        log.info("{}: {} bytes/op generic, {} bytes/op built-in", name, genericBytes, builtInBytes);
+        Assert.assertTrue(builtInBytes <= genericBytes + TOLERANCE_BYTES, name + " allocates more with built-in codecs: "
+                + builtInBytes + " vs " + genericBytes + " bytes/op");
+        genericTotal += genericBytes;
+        builtInTotal += builtInBytes;
+    }
+
+    private static double allocatedPerOp(com.sun.management.ThreadMXBean allocations, Runnable op) {
+        for (int i = 0; i < ITERATIONS; i++) { //warm up
+            op.run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            op.run();
+        }
+        long after = allocations.getThreadAllocatedBytes(threadId);
+        return (after - before) / (double) ITERATIONS;
+    }
+
+    public enum BenchmarkLevel {
+        LOW, MEDIUM, HIGH
+    }
+
+    public static class BenchmarkBean {
+        private UUID id;
+        private BenchmarkLevel level;
+        private long count;
+        private Map<UUID, BenchmarkLevel> lookup;
+        private int[] numbers;
+    }
+}
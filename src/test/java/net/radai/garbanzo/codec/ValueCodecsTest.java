@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2016 Radai Rosenblatt.
+ * This file is part of Garbanzo.
+ *
+ *  Garbanzo is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Garbanzo is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Garbanzo.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.radai.garbanzo.codec;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Created by Radai Rosenblatt
+ */
+public class ValueCodecsTest {
+
+    @Test
+    public void testIntegral() throws Exception {
+        Random random = new Random(System.currentTimeMillis());
+        for (int i = 0; i < 1000; i++) {
+            long value = random.nextLong();
+            Assert.assertEquals(ValueCodecs.LONG.decode(Long.toString(value)), Long.valueOf(value));
+            Assert.assertEquals(ValueCodecs.LONG.encode(value), Long.toString(value));
+            int intValue = random.nextInt();
+            Assert.assertEquals(ValueCodecs.INTEGER.decode(Integer.toString(intValue)), Integer.valueOf(intValue));
+        }
+        Assert.assertEquals(ValueCodecs.LONG.decode(Long.toString(Long.MIN_VALUE)), Long.valueOf(Long.MIN_VALUE));
+        Assert.assertEquals(ValueCodecs.LONG.decode(Long.toString(Long.MAX_VALUE)), Long.valueOf(Long.MAX_VALUE));
+        Assert.assertEquals(ValueCodecs.BYTE.decode("-128"), Byte.valueOf(Byte.MIN_VALUE));
+        Assert.assertEquals(ValueCodecs.SHORT.decode("+7"), Short.valueOf((short) 7));
+        for (String invalid : new String[] {"", "-", "1a", "128", "-129", " 1"}) {
+            try {
+                ValueCodecs.BYTE.decode(invalid);
+                Assert.fail("decoded \"" + invalid + "\"");
+            } catch (NumberFormatException expected) {
+                //expected
+            }
+        }
+    }
+
+    @Test
+    public void testBooleanAndFloating() throws Exception {
+        Assert.assertTrue(ValueCodecs.BOOLEAN.decode("TrUe"));
+        Assert.assertFalse(ValueCodecs.BOOLEAN.decode("yes"));
+        Assert.assertEquals(ValueCodecs.BOOLEAN.encode(true), "true");
+        Assert.assertEquals(ValueCodecs.DOUBLE.decode("0.1"), 0.1);
+        Assert.assertEquals(ValueCodecs.DOUBLE.encode(0.1), Double.toString(0.1));
+        Assert.assertEquals(ValueCodecs.FLOAT.encode(1.5f), "1.5");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testEnum() throws Exception {
+        ValueCodec<Thread.State> codec = (ValueCodec<Thread.State>) ValueCodecs.forType(Thread.State.class);
+        Assert.assertSame(ValueCodecs.forType(Thread.State.class), codec);
+        for (Thread.State state : Thread.State.values()) {
+            Assert.assertEquals(codec.encode(state), state.name());
+            Assert.assertSame(codec.decode(state.name()), state);
+        }
+        try {
+            codec.decode("nope");
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testUuid() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            UUID uuid = UUID.randomUUID();
+            Assert.assertEquals(ValueCodecs.UUID_CODEC.encode(uuid), uuid.toString());
+            Assert.assertEquals(ValueCodecs.UUID_CODEC.decode(uuid.toString()), uuid);
+            Assert.assertEquals(ValueCodecs.UUID_CODEC.decode(uuid.toString().toUpperCase()), uuid);
+        }
+        Assert.assertEquals(ValueCodecs.UUID_CODEC.decode("1-2-3-4-5"), UUID.fromString("1-2-3-4-5"));
+    }
+}